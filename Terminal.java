@@ -2,7 +2,10 @@ import java.io.*;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;   
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import java.util.zip.*;
 
@@ -49,9 +52,145 @@ class Parser {
     }
 }
 
+class FileHasher {
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CACHE_ENTRIES = 10000;
+
+    static class Result {
+        final Path path;
+        final String digest;
+        final String error;
+
+        Result(Path path, String digest, String error) {
+            this.path = path;
+            this.digest = digest;
+            this.error = error;
+        }
+    }
+
+    private static class CacheEntry {
+        final long size;
+        final FileTime modified;
+        final Object fileKey;
+        final String digest;
+
+        CacheEntry(BasicFileAttributes attrs, String digest) {
+            this.size = attrs.size();
+            this.modified = attrs.lastModifiedTime();
+            this.fileKey = attrs.fileKey();
+            this.digest = digest;
+        }
+
+        boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size()
+                    && modified.equals(attrs.lastModifiedTime())
+                    && Objects.equals(fileKey, attrs.fileKey());
+        }
+    }
+
+    private static class LruCache extends LinkedHashMap<String, CacheEntry> {
+        private static final long serialVersionUID = 1L;
+
+        LruCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > MAX_CACHE_ENTRIES;
+        }
+    }
+
+    // digests are reused while a file's size, mtime and identity are unchanged
+    private final Map<String, CacheEntry> cache = Collections.synchronizedMap(new LruCache());
+    private ExecutorService pool;
+
+    private synchronized ExecutorService pool() {
+        if (pool == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+            pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "file-hasher");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return pool;
+    }
+
+    public List<Result> hashAll(List<Path> files, String algorithm) {
+        List<Future<String>> futures = new ArrayList<>();
+        for (Path p : files) futures.add(pool().submit(() -> digest(p, algorithm)));
+
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            Path p = files.get(i);
+            try {
+                results.add(new Result(p, futures.get(i).get(), null));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                String msg = cause instanceof NoSuchFileException ? "No such file or directory" : cause.getMessage();
+                results.add(new Result(p, null, msg));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(new Result(p, null, "interrupted"));
+            }
+        }
+        return results;
+    }
+
+    public String digest(Path p, String algorithm) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+        if (attrs.isDirectory()) throw new IOException("Is a directory");
+
+        String key = cacheKey(p, algorithm);
+        CacheEntry cached = cache.get(key);
+        if (cached != null && cached.matches(attrs)) return cached.digest;
+
+        MessageDigest md = newDigest(algorithm);
+        byte[] buffer = new byte[(int) Math.max(1, Math.min(CHUNK_SIZE, attrs.size()))];
+        try (InputStream in = Files.newInputStream(p)) {
+            int len;
+            while ((len = in.read(buffer)) != -1) md.update(buffer, 0, len);
+        }
+        String hex = toHex(md.digest());
+
+        // a file changed while it was being read must not be cached
+        BasicFileAttributes after = Files.readAttributes(p, BasicFileAttributes.class);
+        CacheEntry entry = new CacheEntry(attrs, hex);
+        if (entry.matches(after)) cache.put(key, entry);
+        return hex;
+    }
+
+    public void invalidate(Path p, String algorithm) {
+        cache.remove(cacheKey(p, algorithm));
+    }
+
+    private static String cacheKey(Path p, String algorithm) {
+        return algorithm + ":" + p.toAbsolutePath().normalize();
+    }
+
+    static MessageDigest newDigest(String algorithm) throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("unsupported algorithm: " + algorithm);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+}
+
 public class Terminal {
     private Parser parser;
     private Path currentDir;
+    private final FileHasher hasher = new FileHasher();
+
+    private static final Pattern CHECK_LINE_PATTERN =
+            Pattern.compile("^([0-9a-fA-F]+) [ *](.+)$");
 
     public Terminal() {
         this.parser = new Parser();
@@ -285,9 +424,17 @@ public class Terminal {
             return;
         }
 
+        boolean verify = false;
+        List<String> rest = new ArrayList<>();
+        for (String a : args) {
+            if (a.equals("--verify")) verify = true;
+            else rest.add(a);
+        }
+        args = rest.toArray(new String[0]);
+
         if (args.length >= 1 && args[0].equals("-r")) {
             if (args.length != 3) {
-                System.out.println("cp: usage: cp -r <srcDir> <dstDir>");
+                System.out.println("cp: usage: cp -r <srcDir> <dstDir> [--verify]");
                 return;
             }
             Path src = Paths.get(args[1]);
@@ -311,6 +458,20 @@ public class Terminal {
                 }
                 Path dstTarget = dst.resolve(src.getFileName());
                 copyDirectoryRecursively(src, dstTarget);
+                if (verify) {
+                    List<Path> sources = new ArrayList<>();
+                    List<Path> targets = new ArrayList<>();
+                    final Path srcRoot = src;
+                    Files.walkFileTree(srcRoot, new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            sources.add(file);
+                            targets.add(dstTarget.resolve(srcRoot.relativize(file)));
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                    verifyCopies("cp", sources, targets);
+                }
             } catch (IOException e) {
                 System.out.println("cp: error copying directories: " + e.getMessage());
             }
@@ -339,7 +500,130 @@ public class Terminal {
             Files.copy(src, dst, StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
             System.out.println("cp: error copying file: " + e.getMessage());
+            return;
         }
+        if (verify) verifyCopies("cp", Collections.singletonList(src), Collections.singletonList(dst));
+    }
+
+    private void verifyCopies(String cmd, List<Path> sources, List<Path> targets) {
+        List<String> expected = new ArrayList<>();
+        for (FileHasher.Result r : hasher.hashAll(sources, "SHA-256")) {
+            if (r.error != null) {
+                System.out.println(cmd + ": verify: cannot read " + r.path + ": " + r.error);
+                expected.add(null);
+            } else {
+                expected.add(r.digest);
+            }
+        }
+        verifyDigests(cmd, targets, expected);
+    }
+
+    private void verifyDigests(String cmd, List<Path> targets, List<String> expected) {
+        // freshly written files must be re-read, never answered from the cache
+        for (Path t : targets) hasher.invalidate(t, "SHA-256");
+        List<FileHasher.Result> results = hasher.hashAll(targets, "SHA-256");
+
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            FileHasher.Result r = results.get(i);
+            if (r.error != null) {
+                System.out.println(cmd + ": verify: cannot read " + r.path + ": " + r.error);
+                failed++;
+            } else if (expected.get(i) == null || !expected.get(i).equals(r.digest)) {
+                System.out.println(cmd + ": verify: checksum mismatch: " + r.path);
+                failed++;
+            }
+        }
+        if (failed == 0) System.out.println(cmd + ": verified " + results.size() + " file(s)");
+        else System.out.println(cmd + ": verify failed for " + failed + " of " + results.size() + " file(s)");
+    }
+
+    public void checksum(String cmd, String algorithm, String[] args) {
+        if (args == null || args.length == 0) {
+            System.out.println(cmd + ": usage: " + cmd + " <file1> [file2 ...]  OR  " + cmd + " --check <sumfile>");
+            return;
+        }
+        if (args[0].equals("-c") || args[0].equals("--check")) {
+            if (args.length != 2) {
+                System.out.println(cmd + ": usage: " + cmd + " --check <sumfile>");
+                return;
+            }
+            checkSums(cmd, algorithm, args[1]);
+            return;
+        }
+
+        List<Path> paths = new ArrayList<>();
+        for (String s : args) {
+            Path p = Paths.get(s);
+            if (!p.isAbsolute()) p = currentDir.resolve(p);
+            paths.add(p.normalize());
+        }
+        List<FileHasher.Result> results = hasher.hashAll(paths, algorithm);
+        for (int i = 0; i < results.size(); i++) {
+            FileHasher.Result r = results.get(i);
+            if (r.error != null) System.out.println(cmd + ": " + args[i] + ": " + r.error);
+            else System.out.println(r.digest + "  " + args[i]);
+        }
+    }
+
+    private void checkSums(String cmd, String algorithm, String sumFile) {
+        Path list = Paths.get(sumFile);
+        if (!list.isAbsolute()) list = currentDir.resolve(list);
+        list = list.normalize();
+        if (!Files.exists(list) || Files.isDirectory(list)) {
+            System.out.println(cmd + ": " + sumFile + ": No such file or is a directory");
+            return;
+        }
+
+        List<String> lines;
+        int hexLength;
+        try {
+            hexLength = 2 * FileHasher.newDigest(algorithm).getDigestLength();
+            lines = Files.readAllLines(list);
+        } catch (IOException e) {
+            System.out.println(cmd + ": error reading '" + list + "': " + e.getMessage());
+            return;
+        }
+
+        List<String> names = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        List<Path> paths = new ArrayList<>();
+        int malformed = 0;
+        for (String line : lines) {
+            if (line.trim().isEmpty()) continue;
+            Matcher m = CHECK_LINE_PATTERN.matcher(line);
+            if (!m.matches() || m.group(1).length() != hexLength) {
+                malformed++;
+                continue;
+            }
+            Path p = Paths.get(m.group(2));
+            if (!p.isAbsolute()) p = currentDir.resolve(p);
+            names.add(m.group(2));
+            expected.add(m.group(1).toLowerCase());
+            paths.add(p.normalize());
+        }
+        if (names.isEmpty()) {
+            System.out.println(cmd + ": " + sumFile + ": no properly formatted checksum lines found");
+            return;
+        }
+
+        List<FileHasher.Result> results = hasher.hashAll(paths, algorithm);
+        int failed = 0, unreadable = 0;
+        for (int i = 0; i < results.size(); i++) {
+            FileHasher.Result r = results.get(i);
+            if (r.error != null) {
+                System.out.println(names.get(i) + ": FAILED open or read");
+                unreadable++;
+            } else if (r.digest.equals(expected.get(i))) {
+                System.out.println(names.get(i) + ": OK");
+            } else {
+                System.out.println(names.get(i) + ": FAILED");
+                failed++;
+            }
+        }
+        if (malformed > 0) System.out.println(cmd + ": WARNING: " + malformed + " line(s) improperly formatted");
+        if (unreadable > 0) System.out.println(cmd + ": WARNING: " + unreadable + " listed file(s) could not be read");
+        if (failed > 0) System.out.println(cmd + ": WARNING: " + failed + " computed checksum(s) did NOT match");
     }
 
     private void copyDirectoryRecursively(Path src, Path dst) throws IOException {
@@ -428,9 +712,18 @@ public class Terminal {
 
     public void unzipCmd(String[] args) {
         if (args == null || args.length == 0) {
-            System.out.println("unzip: usage: unzip <archive.zip> [-d <destDir>]");
+            System.out.println("unzip: usage: unzip <archive.zip> [-d <destDir>] [--verify]");
             return;
         }
+
+        boolean verify = false;
+        List<String> rest = new ArrayList<>();
+        for (String a : args) {
+            if (a.equals("--verify")) verify = true;
+            else rest.add(a);
+        }
+        args = rest.toArray(new String[0]);
+
         Path archive = null;
         Path dest = currentDir;
 
@@ -473,6 +766,8 @@ public class Terminal {
             return;
         }
 
+        List<Path> extracted = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
         try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(Files.newInputStream(archive)))) {
             ZipEntry entry;
             while ((entry = zis.getNextEntry()) != null) {
@@ -487,10 +782,18 @@ public class Terminal {
                 } else {
                     Path parent = outPath.getParent();
                     if (parent != null && !Files.exists(parent)) Files.createDirectories(parent);
+                    MessageDigest md = verify ? FileHasher.newDigest("SHA-256") : null;
                     try (OutputStream os = Files.newOutputStream(outPath)) {
                         byte[] buffer = new byte[8192];
                         int len;
-                        while ((len = zis.read(buffer)) > 0) os.write(buffer, 0, len);
+                        while ((len = zis.read(buffer)) > 0) {
+                            os.write(buffer, 0, len);
+                            if (md != null) md.update(buffer, 0, len);
+                        }
+                    }
+                    if (md != null) {
+                        extracted.add(outPath);
+                        expected.add(FileHasher.toHex(md.digest()));
                     }
                 }
                 zis.closeEntry();
@@ -498,7 +801,9 @@ public class Terminal {
             System.out.println("unzip: extracted to " + dest);
         } catch (IOException e) {
             System.out.println("unzip: error extracting: " + e.getMessage());
+            return;
         }
+        if (verify) verifyDigests("unzip", extracted, expected);
     }
 
     public void help() {
@@ -512,11 +817,13 @@ public class Terminal {
         System.out.println("  rm <file>");
         System.out.println("  cat <file> OR cat <file1> <file2>");
         System.out.println("  wc <file>");
-        System.out.println("  cp <src> <dst>");
-        System.out.println("  cp -r <srcDir> <dstDir>");
+        System.out.println("  cp <src> <dst> [--verify]");
+        System.out.println("  cp -r <srcDir> <dstDir> [--verify]");
         System.out.println("  zip <archive.zip> <file1> [file2 ...]");
         System.out.println("  zip -r <archive.zip> <directory>");
-        System.out.println("  unzip <archive.zip> [-d <destDir>]");
+        System.out.println("  unzip <archive.zip> [-d <destDir>] [--verify]");
+        System.out.println("  sha256sum <file1> [file2 ...] | sha256sum --check <sumfile>");
+        System.out.println("  md5sum <file1> [file2 ...] | md5sum --check <sumfile>");
         System.out.println("  Redirection: use '>' to overwrite or '>>' to append.");
         System.out.println("  help");
         System.out.println("  exit");
@@ -597,6 +904,12 @@ public class Terminal {
                 case "unzip":
                     unzipCmd(actualArgs.toArray(new String[0]));
                     break;
+                case "sha256sum":
+                    checksum("sha256sum", "SHA-256", actualArgs.toArray(new String[0]));
+                    break;
+                case "md5sum":
+                    checksum("md5sum", "MD5", actualArgs.toArray(new String[0]));
+                    break;
                 case "help":
                     help();
                     break;